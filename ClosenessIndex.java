@@ -0,0 +1,374 @@
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.stream.IntStream;
+
+/**
+ * @authors David Park and Reseun McClendon
+ * Precomputed index of every actor's average separation (as GraphLibrary.averageSeparation gives it)
+ * and the size of the component the actor can reach, saved to a file that is memory-mapped to answer
+ * range and rank queries by binary search instead of a bfs from every actor.
+ *
+ * File layout (big-endian):
+ *   header:  magic, version, graph fingerprint (long), number of actors
+ *   records: one per actor sorted by average separation then name: separation (double), component size, name offset
+ *   by name: record numbers sorted by actor name
+ *   names:   each name as its UTF-8 length followed by its bytes
+ * The fingerprint changes whenever the graph's actors or edges do, so a stale index is rebuilt by openOrBuild.
+ *
+ * Since building it takes one bfs per actor, the index for the game is built offline, before playing:
+ * Usage: java ClosenessIndex [actors file] [movies file] [movie-actors file] [index file]
+ */
+public class ClosenessIndex {
+	private static final int MAGIC = 0x4B42434C;	// "KBCL"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 20;
+	private static final int RECORD_BYTES = 16;
+
+	private MappedByteBuffer buffer;	// the whole file
+	private long fingerprint;			// fingerprint of the graph it was built from
+	private int count;					// number of actors
+	private int byNameStart;			// where the by name table starts
+
+	/**
+	 * Constructor that maps an index file, checking that it is one
+	 * @param filename
+	 * @throws IOException
+	 */
+	private ClosenessIndex(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a closeness index: " + filename);
+		}
+		fingerprint = buffer.getLong(8);
+		count = buffer.getInt(16);
+		if (count < 0 || buffer.capacity() < HEADER_BYTES + (long) count * (RECORD_BYTES + 4)) {
+			throw new IOException("Truncated closeness index: " + filename);
+		}
+		byNameStart = HEADER_BYTES + count * RECORD_BYTES;
+	}
+
+	/**
+	 * Method that opens an existing index file
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 */
+	public static ClosenessIndex open(String filename) throws IOException {
+		return new ClosenessIndex(filename);
+	}
+
+	/**
+	 * Method that opens the index file, checking that it was built from this graph
+	 * @param graph
+	 * @param filename
+	 * @return
+	 * @throws IOException if the file can't be read or was built from a different graph
+	 */
+	public static <E> ClosenessIndex openCurrent(Graph<String, E> graph, String filename) throws IOException {
+		ClosenessIndex index = open(filename);
+		if (index.fingerprint != fingerprint(graph)) throw new IOException("Closeness index was built from a different graph: " + filename);
+		return index;
+	}
+
+	/**
+	 * Method that opens the index file if it was built from this graph, and otherwise (re)builds it first
+	 * @param graph
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 */
+	public static <E> ClosenessIndex openOrBuild(Graph<String, E> graph, String filename) throws IOException {
+		long current = fingerprint(graph);
+		if (new File(filename).exists()) {
+			try {
+				ClosenessIndex index = open(filename);
+				if (index.fingerprint == current) return index;
+			}
+			catch (IOException e) {
+				System.err.println("Rebuilding unreadable closeness index.\n" + e.getMessage());
+			}
+		}
+		build(graph, filename, current);
+		return open(filename);
+	}
+
+	/**
+	 * Method that returns a fingerprint of the graph's vertices and edges that doesn't depend on
+	 * the order the graph lists them in (edge labels are left out since they don't change distances).
+	 * Names are hashed from their UTF-8 bytes with a 64-bit hash, since String.hashCode collides too easily
+	 * @param graph
+	 * @return
+	 */
+	public static <E> long fingerprint(Graph<String, E> graph) {
+		Map<String, Long> hashes = new HashMap<String, Long>();
+		for (String v : graph.vertices()) hashes.put(v, hash(v));
+
+		long fingerprint = mix(graph.numVertices()) ^ mix(graph.numEdges() + 1L);
+		for (String u : graph.vertices()) {
+			long hu = hashes.get(u);
+			fingerprint += mix(hu);
+			for (String v : graph.outNeighbors(u)) fingerprint += mix(hu * 0x9E3779B97F4A7C15L + hashes.get(v));
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Helper method that hashes the UTF-8 bytes of a name to 64 bits (FNV-1a, then mixed)
+	 */
+	private static long hash(String name) {
+		long hash = 0xCBF29CE484222325L;
+		for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001B3L;
+		}
+		return mix(hash);
+	}
+
+	/**
+	 * Helper method that scrambles the bits of a long (the splitmix64 finalizer)
+	 */
+	private static long mix(long x) {
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+	/**
+	 * Method that computes every actor's average separation and component size (one bfs per actor,
+	 * spread over all cores; by id on a CompressedGraph) and writes the index file
+	 * @param graph
+	 * @param filename
+	 * @throws IOException
+	 */
+	public static <E> void build(Graph<String, E> graph, String filename) throws IOException {
+		build(graph, filename, fingerprint(graph));
+	}
+
+	private static <E> void build(Graph<String, E> graph, String filename, long fingerprint) throws IOException {
+		List<String> actors = new ArrayList<String>();
+		for (String actor : graph.vertices()) actors.add(actor);
+		int n = actors.size();
+
+		//Do the searches
+		double[] separation = new double[n];
+		int[] componentSize = new int[n];
+		if (graph instanceof CompressedGraph) {
+			//Only distances are needed, so search by id and add up each vertex's depth (its parent's plus one)
+			//in the order the queue reached them, with one set of arrays per thread instead of a tree per actor
+			CompressedGraph<String, E> g = (CompressedGraph<String, E>) graph;
+			ThreadLocal<int[][]> buffers = ThreadLocal.withInitial(() -> new int[3][n]);
+			IntStream.range(0, n).parallel().forEach(i -> {
+				int[][] buffer = buffers.get();
+				int[] parent = buffer[0], queue = buffer[1], depth = buffer[2];
+				int reached = g.bfs(g.idOf(actors.get(i)), parent, queue);
+				long total = 0;
+				depth[queue[0]] = 0;
+				for (int k = 1; k < reached; k++) {
+					depth[queue[k]] = depth[parent[queue[k]]] + 1;
+					total += depth[queue[k]];
+				}
+				separation[i] = (double) total / reached;
+				componentSize[i] = reached;
+			});
+		}
+		else {
+			IntStream.range(0, n).parallel().forEach(i -> {
+				Graph<String, E> tree = GraphLibrary.bfs(graph, actors.get(i));
+				separation[i] = GraphLibrary.averageSeparation(tree, actors.get(i));
+				componentSize[i] = tree.numVertices();
+			});
+		}
+
+		//Sort the actors by separation (then name), and separately by name
+		Integer[] records = new Integer[n];
+		for (int i = 0; i < n; i++) records[i] = i;
+		Arrays.sort(records, (Integer a, Integer b) -> separation[a] != separation[b]
+				? Double.compare(separation[a], separation[b]) : actors.get(a).compareTo(actors.get(b)));
+		int[] recordOf = new int[n];
+		for (int r = 0; r < n; r++) recordOf[records[r]] = r;
+		Integer[] byName = new Integer[n];
+		for (int i = 0; i < n; i++) byName[i] = i;
+		Arrays.sort(byName, (Integer a, Integer b) -> actors.get(a).compareTo(actors.get(b)));
+
+		//Write to a temporary file and move it into place, so readers never see half an index
+		File file = new File(filename);
+		File temp = new File(filename + ".tmp");
+		try {
+			write(temp, fingerprint, actors, separation, componentSize, records, recordOf, byName);
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException | RuntimeException e) {
+			temp.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * Helper method that writes the index file laid out as described at the top
+	 */
+	private static void write(File temp, long fingerprint, List<String> actors, double[] separation, int[] componentSize,
+			Integer[] records, int[] recordOf, Integer[] byName) throws IOException {
+		int n = actors.size();
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(fingerprint);
+			output.writeInt(n);
+
+			//Names go after the records and by name table, in record order
+			byte[][] names = new byte[n][];
+			long nameOffset = HEADER_BYTES + (long) n * (RECORD_BYTES + 4);
+			for (int r = 0; r < n; r++) {
+				int i = records[r];
+				names[r] = actors.get(i).getBytes(StandardCharsets.UTF_8);
+				if (nameOffset > Integer.MAX_VALUE) throw new IOException("Closeness index too large to map");
+				output.writeDouble(separation[i]);
+				output.writeInt(componentSize[i]);
+				output.writeInt((int) nameOffset);
+				nameOffset += 4 + names[r].length;
+			}
+			for (int i : byName) output.writeInt(recordOf[i]);
+			for (byte[] name : names) {
+				output.writeInt(name.length);
+				output.write(name);
+			}
+		}
+	}
+
+	/** How many actors are in the index */
+	public int size() {
+		return count;
+	}
+
+	/** The fingerprint of the graph the index was built from */
+	public long fingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Helper methods reading the fields of a record
+	 */
+	private double separationAt(int record) {
+		return buffer.getDouble(HEADER_BYTES + record * RECORD_BYTES);
+	}
+
+	private int componentSizeAt(int record) {
+		return buffer.getInt(HEADER_BYTES + record * RECORD_BYTES + 8);
+	}
+
+	private String nameAt(int record) {
+		int offset = buffer.getInt(HEADER_BYTES + record * RECORD_BYTES + 12);
+		byte[] name = new byte[buffer.getInt(offset)];
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(offset + 4);
+		slice.get(name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Helper method that returns the number of the first record with separation >= value
+	 */
+	private int firstRecord(double value) {
+		int low = 0, high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (separationAt(mid) < value) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Helper method that returns the record of the actor, or -1 if the actor isn't in the index
+	 */
+	private int recordOf(String actor) {
+		int low = 0, high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int record = buffer.getInt(byNameStart + mid * 4);
+			int compare = nameAt(record).compareTo(actor);
+			if (compare == 0) return record;
+			if (compare < 0) low = mid + 1;
+			else high = mid - 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Method that returns the actors whose average separation is between low and high (inclusive),
+	 * from lowest to highest separation
+	 * @param low
+	 * @param high
+	 * @return
+	 */
+	public List<String> range(double low, double high) {
+		List<String> actors = new ArrayList<String>();
+		for (int r = firstRecord(low); r < count && separationAt(r) <= high; r++) {
+			actors.add(nameAt(r));
+		}
+		return actors;
+	}
+
+	/**
+	 * Method that returns how many actors have a strictly lower average separation than the actor
+	 * (so 0 is the most central), or -1 if the actor isn't in the index
+	 * @param actor
+	 * @return
+	 */
+	public int rank(String actor) {
+		int record = recordOf(actor);
+		return record < 0 ? -1 : firstRecord(separationAt(record));
+	}
+
+	/**
+	 * Method that returns the actor's average separation, or NaN if the actor isn't in the index
+	 * @param actor
+	 * @return
+	 */
+	public double averageSeparation(String actor) {
+		int record = recordOf(actor);
+		return record < 0 ? Double.NaN : separationAt(record);
+	}
+
+	/**
+	 * Method that returns the number of actors the actor can reach (including themselves), or 0 if the actor isn't in the index
+	 * @param actor
+	 * @return
+	 */
+	public int componentSize(String actor) {
+		int record = recordOf(actor);
+		return record < 0 ? 0 : componentSizeAt(record);
+	}
+
+	/**
+	 * Main method, builds the movie actor graph the way the game does and writes its closeness index
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		String actorsFile = args.length > 0 ? args[0] : "Inputs/actors.txt";
+		String moviesFile = args.length > 1 ? args[1] : "Inputs/movies.txt";
+		String castFile = args.length > 2 ? args[2] : "Inputs/movie-actors.txt";
+		String indexFile = args.length > 3 ? args[3] : "Inputs/closeness.idx";
+
+		Map<Integer, String> ActorIDMap = KevinBacon.createIDMap(actorsFile);
+		Map<Integer, String> MovieIDMap = KevinBacon.createIDMap(moviesFile);
+		Graph<String, Set<String>> MovieActorGraph = KevinBacon.createCompressedGraph(MovieIDMap, ActorIDMap, castFile);
+
+		//Try-catch the building of the index
+		try {
+			long start = System.nanoTime();
+			build(MovieActorGraph, indexFile);
+			System.out.println("Wrote closeness index of " + MovieActorGraph.numVertices() + " actors to " + indexFile
+					+ " in " + (System.nanoTime() - start) / 1000000000 + " s");
+		}
+		catch (IOException e) {
+			System.err.println("Cannot build closeness index.\n" + e.getMessage());
+		}
+	}
+}
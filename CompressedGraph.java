@@ -0,0 +1,496 @@
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Compressed, read-only implementation of the Graph interface for very large graphs
+ * Vertices are numbered 0..n-1; each vertex's sorted neighbor ids are gap-encoded as
+ * variable-length integers in one shared byte array, with an offsets index for random access
+ * Edge labels are looked up by edge index (the position of the edge in that order) through a
+ * label function, so callers can keep them in whatever compact form suits them; an undirected
+ * graph can share one label between the two directions of each edge
+ *
+ * @authors David Park and Reseun McClendon
+ */
+public class CompressedGraph<V,E> implements Graph<V,E> {
+	protected List<V> vertexList;			// id -> vertex
+	protected Map<V, Integer> ids;			// vertex -> id
+	protected byte[] outBytes;				// gap + varint encoded out-neighbor lists
+	protected int[] outOffsets;				// id -> first byte of its list in outBytes (n+1 entries)
+	protected int[] outStart;				// id -> index of its first edge, for labels and degrees (n+1 entries)
+	protected byte[] inBytes;				// same as above for in-neighbors (shared with out if symmetric)
+	protected int[] inOffsets;
+	protected int[] inStart;
+	protected IntFunction<E> labelOf;		// edge index -> label (null if the edges have no labels)
+	protected boolean undirectedLabels;		// whether labelOf is only asked for edges from a lower to a higher id
+	protected int maxOutDegree;				// largest out degree, the buffer size needed to decode any out list
+	protected int maxInDegree;				// largest in degree, the buffer size needed to decode any in list
+
+	/**
+	 * Constructor that compresses a copy of any other graph, numbering the
+	 * vertices in the order that the graph iterates over them
+	 * @param g
+	 */
+	public CompressedGraph(Graph<V,E> g) {
+		this(g, g.vertices());
+	}
+
+	/**
+	 * Constructor that compresses a copy of any other graph, numbering the
+	 * vertices in the given order (which must contain every vertex exactly once)
+	 * @param g
+	 * @param order
+	 */
+	public CompressedGraph(Graph<V,E> g, Iterable<V> order) {
+		//Number the vertices
+		vertexList = new ArrayList<V>(g.numVertices());
+		ids = new HashMap<V, Integer>();
+		for (V v : order) {
+			if (!g.hasVertex(v)) throw new IllegalArgumentException("Vertex not in graph: " + v);
+			if (ids.containsKey(v)) throw new IllegalArgumentException("Vertex listed twice: " + v);
+			ids.put(v, vertexList.size());
+			vertexList.add(v);
+		}
+		if (vertexList.size() != g.numVertices()) {
+			throw new IllegalArgumentException("Order has " + vertexList.size() + " vertices, graph has " + g.numVertices());
+		}
+
+		//Flatten the out edges into sorted id arrays (compressed sparse row form)
+		int n = vertexList.size();
+		int[] start = new int[n + 1];
+		for (int i = 0; i < n; i++) start[i + 1] = start[i] + g.outDegree(vertexList.get(i));
+		int[] targets = new int[start[n]];
+		Object[] edgeLabels = new Object[start[n]];
+		for (int i = 0; i < n; i++) {
+			V u = vertexList.get(i);
+			int k = start[i];
+			for (V w : g.outNeighbors(u)) targets[k++] = ids.get(w);
+			Arrays.sort(targets, start[i], start[i + 1]);
+			for (k = start[i]; k < start[i + 1]; k++) edgeLabels[k] = g.getLabel(u, vertexList.get(targets[k]));
+		}
+		build(start, targets, k -> cast(edgeLabels[k]));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> E cast(Object label) {
+		return (E) label;
+	}
+
+	/**
+	 * Constructor from already flattened edges: the out-neighbors of vertex i are
+	 * targets[start[i]] .. targets[start[i+1]-1], sorted and without repeats, and
+	 * labelOf (which may be null) gives the label of the edge at index k of targets
+	 * whenever getLabel asks for it
+	 * @param vertices
+	 * @param start
+	 * @param targets
+	 * @param labelOf
+	 */
+	public CompressedGraph(List<V> vertices, int[] start, int[] targets, IntFunction<E> labelOf) {
+		this(vertices, start, targets, labelOf, false);
+	}
+
+	/**
+	 * Same as above, but if undirectedLabels is true the edges must be symmetric and the edges from u to v
+	 * and from v to u share one label: labelOf is then only asked for the edge from the lower id to the
+	 * higher id, so it needs to keep just one label per pair
+	 * @param vertices
+	 * @param start
+	 * @param targets
+	 * @param labelOf
+	 * @param undirectedLabels
+	 */
+	public CompressedGraph(List<V> vertices, int[] start, int[] targets, IntFunction<E> labelOf, boolean undirectedLabels) {
+		vertexList = new ArrayList<V>(vertices);
+		ids = new HashMap<V, Integer>();
+		for (int i = 0; i < vertexList.size(); i++) ids.put(vertexList.get(i), i);
+		build(start, targets, labelOf);
+		if (undirectedLabels && inBytes != outBytes) throw new IllegalArgumentException("Undirected labels need symmetric edges");
+		this.undirectedLabels = undirectedLabels;
+	}
+
+	/**
+	 * Encodes the out lists and, unless the graph is symmetric, the in lists
+	 */
+	private void build(int[] start, int[] targets, IntFunction<E> edgeLabelOf) {
+		int n = vertexList.size();
+		outStart = start;
+		outOffsets = new int[n + 1];
+		outBytes = encode(start, targets, outOffsets);
+		labelOf = edgeLabelOf;
+		for (int i = 0; i < n; i++) maxOutDegree = Math.max(maxOutDegree, start[i + 1] - start[i]);
+
+		//Transpose the edges to get the in lists (counting sort by target keeps each list sorted)
+		int[] tStart = new int[n + 1];
+		for (int t : targets) tStart[t + 1]++;
+		for (int i = 0; i < n; i++) tStart[i + 1] += tStart[i];
+		int[] sources = new int[targets.length];
+		int[] fill = Arrays.copyOf(tStart, n);
+		for (int i = 0; i < n; i++) {
+			for (int k = start[i]; k < start[i + 1]; k++) sources[fill[targets[k]]++] = i;
+		}
+
+		//Undirected graphs (like the bacon graph) have identical in and out lists, so share them
+		if (Arrays.equals(sources, targets) && Arrays.equals(tStart, start)) {
+			inStart = outStart;
+			inOffsets = outOffsets;
+			inBytes = outBytes;
+		}
+		else {
+			inStart = tStart;
+			inOffsets = new int[n + 1];
+			inBytes = encode(tStart, sources, inOffsets);
+		}
+		for (int i = 0; i < n; i++) maxInDegree = Math.max(maxInDegree, inStart[i + 1] - inStart[i]);
+	}
+
+	/**
+	 * Gap + varint encodes each list: the first id as is, then each difference minus one,
+	 * seven bits per byte with the high bit marking that more bytes follow
+	 */
+	private static byte[] encode(int[] start, int[] ids, int[] offsets) {
+		int n = offsets.length - 1;
+		//First pass to size the array exactly
+		long size = 0;
+		for (int i = 0; i < n; i++) {
+			offsets[i] = (int) size;
+			int prev = -1;
+			for (int k = start[i]; k < start[i + 1]; k++) {
+				size += varintSize(ids[k] - prev - 1);
+				prev = ids[k];
+			}
+			if (size > Integer.MAX_VALUE) throw new IllegalStateException("Compressed graph too large for one byte array");
+		}
+		offsets[n] = (int) size;
+
+		//Second pass to write the bytes
+		byte[] bytes = new byte[(int) size];
+		int pos = 0;
+		for (int i = 0; i < n; i++) {
+			int prev = -1;
+			for (int k = start[i]; k < start[i + 1]; k++) {
+				pos = writeVarint(bytes, pos, ids[k] - prev - 1);
+				prev = ids[k];
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * How many bytes writeVarint takes for the value
+	 */
+	static int varintSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the value seven bits per byte starting at pos, returning the position after it
+	 */
+	static int writeVarint(byte[] bytes, int pos, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[pos++] = (byte) value;
+		return pos;
+	}
+
+	/**
+	 * Decodes the out-neighbor ids of vertex id into buffer (which must hold at least
+	 * outDegree entries) and returns how many there are; used by BFS for fast sequential decode
+	 * @param id
+	 * @param buffer
+	 * @return
+	 */
+	public int outNeighborIDs(int id, int[] buffer) {
+		return decode(outBytes, outOffsets[id], outStart[id + 1] - outStart[id], buffer);
+	}
+
+	/**
+	 * Same as outNeighborIDs but for in-neighbors, so buffer must hold at least inDegree entries
+	 * (maxInDegree covers every vertex; on a directed graph it can be larger than maxOutDegree)
+	 * @param id
+	 * @param buffer
+	 * @return
+	 */
+	public int inNeighborIDs(int id, int[] buffer) {
+		return decode(inBytes, inOffsets[id], inStart[id + 1] - inStart[id], buffer);
+	}
+
+	private static int decode(byte[] bytes, int pos, int count, int[] buffer) {
+		int prev = -1;
+		for (int k = 0; k < count; k++) {
+			long read = readGap(bytes, pos);
+			pos = (int) (read >>> 32);
+			prev += (int) read + 1;
+			buffer[k] = prev;
+		}
+		return count;
+	}
+
+	/**
+	 * Reads one varint gap starting at pos, returning the position after it in the high half
+	 * and the gap in the low half (so nothing is allocated per neighbor)
+	 */
+	static long readGap(byte[] bytes, int pos) {
+		int gap = 0, shift = 0, b;
+		do {
+			b = bytes[pos++];
+			gap |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return ((long) pos << 32) | (gap & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * BFS by id from the source, filling parent (-1 for vertices not reached, the source is its own parent)
+	 * and queue (the reached vertices in order of discovery); returns how many vertices were reached
+	 * @param sourceID
+	 * @param parent
+	 * @param queue
+	 * @return
+	 */
+	public int bfs(int sourceID, int[] parent, int[] queue) {
+		Arrays.fill(parent, -1);
+		int[] neighbors = new int[maxOutDegree()];
+		int head = 0, tail = 0;
+		queue[tail++] = sourceID;
+		parent[sourceID] = sourceID;
+
+		while (head < tail) {
+			int current = queue[head++];
+			int count = outNeighborIDs(current, neighbors);
+			for (int k = 0; k < count; k++) {
+				int child = neighbors[k];
+				if (parent[child] < 0) {
+					parent[child] = current;
+					queue[tail++] = child;
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Returns a copy of this graph with the vertices renumbered in the given order (which must contain
+	 * every vertex exactly once), e.g. to put vertices that are searched together next to each other
+	 * Works on the encoded lists directly, so it is much faster than the copying constructor, but the
+	 * labels stay where they were and are reached through an extra int per edge mapping new edges to old ones
+	 * @param order
+	 * @return
+	 */
+	public CompressedGraph<V,E> relabel(List<V> order) {
+		int n = vertexList.size();
+		if (order.size() != n) throw new IllegalArgumentException("Order has " + order.size() + " vertices, graph has " + n);
+
+		//newID[old id] = new id
+		int[] newID = new int[n];
+		Arrays.fill(newID, -1);
+		for (int i = 0; i < n; i++) {
+			int old = ids.get(order.get(i));
+			if (newID[old] >= 0) throw new IllegalArgumentException("Vertex listed twice: " + order.get(i));
+			newID[old] = i;
+		}
+
+		//Renumber each list, sorting (new target, position in list) pairs and remembering each edge's old index for its label
+		int[] start = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			int old = ids.get(order.get(i));
+			start[i + 1] = start[i] + outStart[old + 1] - outStart[old];
+		}
+		int[] targets = new int[start[n]];
+		int[] oldEdge = labelOf == null ? null : new int[start[n]];
+		int[] neighbors = new int[maxOutDegree()];
+		long[] keys = new long[neighbors.length];
+
+		//With undirected labels only the lower to higher id edge has a label, so find each edge's reverse
+		//(going through the sources in order, the reverse edges come up in order in each target's list)
+		int[] reverse = null;
+		if (oldEdge != null && undirectedLabels) {
+			reverse = new int[start[n]];
+			int[] fill = Arrays.copyOf(outStart, n);
+			for (int u = 0; u < n; u++) {
+				int count = outNeighborIDs(u, neighbors);
+				for (int k = 0; k < count; k++) reverse[outStart[u] + k] = fill[neighbors[k]]++;
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			int old = ids.get(order.get(i));
+			int count = outNeighborIDs(old, neighbors);
+			for (int k = 0; k < count; k++) keys[k] = ((long) newID[neighbors[k]] << 32) | k;
+			Arrays.sort(keys, 0, count);
+			for (int k = 0; k < count; k++) {
+				targets[start[i] + k] = (int) (keys[k] >>> 32);
+				if (oldEdge == null) continue;
+				int edge = outStart[old] + (int) keys[k];
+				oldEdge[start[i] + k] = reverse != null && old > neighbors[(int) keys[k]] ? reverse[edge] : edge;
+			}
+		}
+		IntFunction<E> oldLabelOf = labelOf;
+		return new CompressedGraph<V,E>(order, start, targets, oldEdge == null ? null : k -> oldLabelOf.apply(oldEdge[k]));
+	}
+
+	/** The id of the vertex, or -1 if it is not in the graph */
+	public int idOf(V v) {
+		Integer id = ids.get(v);
+		return id == null ? -1 : id;
+	}
+
+	/** The vertex with the id */
+	public V vertexOf(int id) {
+		return vertexList.get(id);
+	}
+
+	/** The largest out degree of any vertex, i.e. the buffer size needed by outNeighborIDs */
+	public int maxOutDegree() {
+		return maxOutDegree;
+	}
+
+	/** The largest in degree of any vertex, i.e. the buffer size needed by inNeighborIDs */
+	public int maxInDegree() {
+		return maxInDegree;
+	}
+
+	/** How many bytes the encoded neighbor lists take up */
+	public long encodedBytes() {
+		return inBytes == outBytes ? outBytes.length : (long) outBytes.length + inBytes.length;
+	}
+
+	public int numVertices() {
+		return vertexList.size();
+	}
+
+	public int numEdges() {
+		return outStart[outStart.length - 1];
+	}
+
+	public Iterable<V> vertices() {
+		return Collections.unmodifiableList(vertexList);
+	}
+
+	public boolean hasVertex(V v) {
+		return ids.containsKey(v);
+	}
+
+	public int outDegree(V v) {
+		int id = ids.get(v);
+		return outStart[id + 1] - outStart[id];
+	}
+
+	public int inDegree(V v) {
+		int id = ids.get(v);
+		return inStart[id + 1] - inStart[id];
+	}
+
+	public Iterable<V> outNeighbors(V v) {
+		return neighbors(outBytes, outOffsets, outStart, ids.get(v));
+	}
+
+	public Iterable<V> inNeighbors(V v) {
+		return neighbors(inBytes, inOffsets, inStart, ids.get(v));
+	}
+
+	/**
+	 * Lazily decodes one neighbor list as vertices (printing it lists them, like a key set does)
+	 */
+	private Iterable<V> neighbors(byte[] bytes, int[] offsets, int[] start, int id) {
+		return new Iterable<V>() {
+			public String toString() {
+				List<V> list = new ArrayList<V>();
+				for (V v : this) list.add(v);
+				return list.toString();
+			}
+
+			public Iterator<V> iterator() {
+				return new Iterator<V>() {
+					int pos = offsets[id];
+					int remaining = start[id + 1] - start[id];
+					int prev = -1;
+
+					public boolean hasNext() {
+						return remaining > 0;
+					}
+
+					public V next() {
+						if (remaining == 0) throw new NoSuchElementException();
+						long read = readGap(bytes, pos);
+						pos = (int) (read >>> 32);
+						prev += (int) read + 1;
+						remaining--;
+						return vertexList.get(prev);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Index of the edge from u to v (the index labelOf takes), or -1 if there is none
+	 * Decodes u's list until it reaches or passes v, since the list is sorted
+	 */
+	private int edgeIndex(V u, V v) {
+		Integer target = ids.get(v);
+		return target == null ? -1 : edgeIndex(ids.get(u), target);
+	}
+
+	private int edgeIndex(int id, int target) {
+		int pos = outOffsets[id];
+		int prev = -1;
+		for (int k = outStart[id]; k < outStart[id + 1]; k++) {
+			long read = readGap(outBytes, pos);
+			pos = (int) (read >>> 32);
+			prev += (int) read + 1;
+			if (prev == target) return k;
+			if (prev > target) return -1;
+		}
+		return -1;
+	}
+
+	public boolean hasEdge(V u, V v) {
+		return edgeIndex(u, v) >= 0;
+	}
+
+	public E getLabel(V u, V v) {
+		int k = edgeIndex(u, v);
+		if (k < 0 || labelOf == null) return null;
+		int id = ids.get(u), target = ids.get(v);
+		if (undirectedLabels && id > target) k = edgeIndex(target, id);
+		return labelOf.apply(k);
+	}
+
+	public void insertVertex(V v) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only");
+	}
+
+	public void insertDirected(V u, V v, E e) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only");
+	}
+
+	public void insertUndirected(V u, V v, E e) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only");
+	}
+
+	public void removeVertex(V v) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only");
+	}
+
+	public void removeDirected(V u, V v) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only");
+	}
+
+	public void removeUndirected(V u, V v) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only");
+	}
+
+	/**
+	 * Returns a string representation of the vertex list and sizes.
+	 */
+	public String toString() {
+		return "Vertices: " + vertexList.toString() + "\nEdges: " + numEdges() + " (" + encodedBytes() + " bytes encoded)";
+	}
+}
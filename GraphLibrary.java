@@ -15,6 +15,11 @@ public class GraphLibrary {
 	 * @return
 	 */
 	public static <V,E> Graph<V,E> bfs(Graph<V,E> g, V source) {
+		//Compressed graphs are searched by id, decoding each neighbor list in one go
+		if (g instanceof CompressedGraph) {
+			return compressedBfs((CompressedGraph<V,E>) g, source);
+		}
+
 		//Initialize a queue and a graph
 		Queue<V> queue = new LinkedList<V>();
 		Graph<V, E> shortest_path_tree = new AdjacencyMapGraph<V, E>();
@@ -43,7 +48,36 @@ public class GraphLibrary {
 		}
 		return shortest_path_tree;
 	}
-	
+
+	/**
+	 * BFS over a compressed graph using an int array queue and parent array,
+	 * producing the same kind of shortest path tree as bfs
+	 * @param g
+	 * @param source
+	 * @return
+	 */
+	private static <V,E> Graph<V,E> compressedBfs(CompressedGraph<V,E> g, V source) {
+		int n = g.numVertices();
+		int sourceID = g.idOf(source);
+		if (sourceID < 0) throw new NoSuchElementException("Vertex not in graph: " + source);
+
+		//Parent of each reached vertex, with the queue left holding them in order of discovery
+		int[] parent = new int[n];
+		int[] queue = new int[n];
+		int tail = g.bfs(sourceID, parent, queue);
+
+		//Build the tree in discovery order, just like bfs does
+		Graph<V, E> shortest_path_tree = new AdjacencyMapGraph<V, E>();
+		shortest_path_tree.insertVertex(source);
+		for (int k = 1; k < tail; k++) {
+			V child = g.vertexOf(queue[k]);
+			V current = g.vertexOf(parent[queue[k]]);
+			shortest_path_tree.insertVertex(child);
+			shortest_path_tree.insertDirected(child, current, g.getLabel(child, current));
+		}
+		return shortest_path_tree;
+	}
+
 	/**
 	 * Method that returns a list representing a path given a shortest path tree
 	 * graph and a vertex that represents the beginning of the path to the root
@@ -80,6 +114,175 @@ public class GraphLibrary {
 		return path;
 	}
 	
+	/**
+	 * This method performs bfs on a given graph like bfs does, but returns a "shortest path DAG"
+	 * in which every vertex points to all of its neighbors that are one step closer to the source,
+	 * not just the first one found, so every shortest path to the source can be followed from it
+	 * @param g
+	 * @param source
+	 * @return
+	 */
+	public static <V,E> Graph<V,E> bfsDAG(Graph<V,E> g, V source) {
+		return bfsDAG(g, source, null);
+	}
+
+	/**
+	 * Same as bfsDAG, but stops once every vertex as close to the source as the target has been reached
+	 * (the DAG then holds all the shortest paths from the target but not all farther vertices)
+	 * @param g
+	 * @param source
+	 * @param target
+	 * @return
+	 */
+	public static <V,E> Graph<V,E> bfsDAG(Graph<V,E> g, V source, V target) {
+		//Initialize a queue, the DAG, and the distance of everything reached
+		Queue<V> queue = new LinkedList<V>();
+		Graph<V, E> shortest_path_dag = new AdjacencyMapGraph<V, E>();
+		Map<V, Integer> distance = new HashMap<V, Integer>();
+		queue.add(source);
+		shortest_path_dag.insertVertex(source);
+		distance.put(source, 0);
+
+		while (!queue.isEmpty()) {
+			V current = queue.poll();
+			int childDistance = distance.get(current) + 1;
+
+			//Stop before going a level past the target
+			if (target != null && distance.containsKey(target) && childDistance > distance.get(target)) break;
+
+			for (V child : g.outNeighbors(current)) {
+				//New vertices are added as in bfs, and vertices already one step farther get another parent
+				if (!distance.containsKey(child)) {
+					shortest_path_dag.insertVertex(child);
+					distance.put(child, childDistance);
+					queue.add(child);
+				}
+				if (distance.get(child) == childDistance) {
+					shortest_path_dag.insertDirected(child, current, g.getLabel(child, current));
+				}
+			}
+		}
+		return shortest_path_dag;
+	}
+
+	/**
+	 * Method that returns the number of shortest paths from each vertex in a shortest path DAG to its root.
+	 * Counts too big for a long are capped at Long.MAX_VALUE rather than overflowing
+	 * @param dag
+	 * @param root
+	 * @return
+	 */
+	public static <V,E> Map<V,Long> shortestPathCounts(Graph<V,E> dag, V root) {
+		Map<V,Long> counts = new HashMap<V,Long>();
+		Queue<V> queue = new LinkedList<V>();
+		counts.put(root, 1L);
+		queue.add(root);
+
+		//Walk down the DAG from the root; a vertex is only taken off the queue after all of its parents,
+		//so by then its count is the sum over all of them
+		while (!queue.isEmpty()) {
+			V current = queue.poll();
+			long count = counts.get(current);
+			for (V child : dag.inNeighbors(current)) {
+				if (!counts.containsKey(child)) {
+					counts.put(child, 0L);
+					queue.add(child);
+				}
+				long sum = counts.get(child) + count;
+				counts.put(child, sum < 0 ? Long.MAX_VALUE : sum);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Method that returns how many different shortest paths connect source and target (0 if none),
+	 * capped at Long.MAX_VALUE
+	 * @param g
+	 * @param source
+	 * @param target
+	 * @return
+	 */
+	public static <V,E> long shortestPathCount(Graph<V,E> g, V source, V target) {
+		Long count = shortestPathCounts(bfsDAG(g, source, target), source).get(target);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * Method that lazily lists every shortest path from v to the root of a shortest path DAG,
+	 * each in the same form as getPath. Paths are found one at a time by depth-first search
+	 * as the iterator is advanced, so only the current path is ever kept in memory
+	 * @param dag
+	 * @param v
+	 * @return
+	 */
+	public static <V,E> Iterable<List<V>> allShortestPaths(Graph<V,E> dag, V v) {
+		return new Iterable<List<V>>() {
+			public Iterator<List<V>> iterator() {
+				return new Iterator<List<V>>() {
+					List<V> path = new ArrayList<V>();					// the current path from v
+					List<Iterator<V>> choices = new ArrayList<Iterator<V>>();	// the parents left to try for each vertex on it
+					boolean ready = dag.hasVertex(v);
+
+					{
+						if (ready) {
+							path.add(v);
+							descend();
+						}
+					}
+
+					//Extend the path through each vertex's next parent until it reaches the root
+					private void descend() {
+						while (true) {
+							Iterator<V> parents = dag.outNeighbors(path.get(path.size() - 1)).iterator();
+							choices.add(parents);
+							if (!parents.hasNext()) return;
+							path.add(parents.next());
+						}
+					}
+
+					public boolean hasNext() {
+						if (ready) return true;
+						//Back up to the deepest vertex with a parent left to try, and descend from there
+						while (!choices.isEmpty()) {
+							choices.remove(choices.size() - 1);
+							path.remove(path.size() - 1);
+							if (choices.isEmpty()) return false;
+							Iterator<V> parents = choices.get(choices.size() - 1);
+							if (parents.hasNext()) {
+								path.add(parents.next());
+								descend();
+								ready = true;
+								return true;
+							}
+						}
+						return false;
+					}
+
+					public List<V> next() {
+						if (!hasNext()) throw new NoSuchElementException();
+						ready = false;
+						return new ArrayList<V>(path);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Method that returns up to n of the shortest paths from v to the root of a shortest path DAG
+	 * @param dag
+	 * @param v
+	 * @param n
+	 * @return
+	 */
+	public static <V,E> List<List<V>> shortestPaths(Graph<V,E> dag, V v, int n) {
+		List<List<V>> paths = new ArrayList<List<V>>();
+		Iterator<List<V>> iterator = allShortestPaths(dag, v).iterator();
+		while (paths.size() < n && iterator.hasNext()) paths.add(iterator.next());
+		return paths;
+	}
+
 	/**
 	 * Method that returns a set of vertices in the graph
 	 * but not in the subgraph (shortest path tree)
@@ -107,6 +310,228 @@ public class GraphLibrary {
 		
 	}
 	
+	/**
+	 * Method that returns the distance of every vertex in a shortest path tree from the root,
+	 * in the order that bfs reached them (so distances never decrease and the last is the farthest)
+	 * @param tree
+	 * @param root
+	 * @return
+	 */
+	public static <V,E> Map<V,Integer> distances(Graph<V,E> tree, V root) {
+		Map<V,Integer> distances = new LinkedHashMap<V,Integer>();
+		Queue<V> queue = new LinkedList<V>();
+		distances.put(root, 0);
+		queue.add(root);
+
+		//Walk down the tree from the root, each child being one further than its parent
+		while (!queue.isEmpty()) {
+			V current = queue.poll();
+			for (V child : tree.inNeighbors(current)) {
+				distances.put(child, distances.get(current) + 1);
+				queue.add(child);
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Method that returns the eccentricity of a vertex, i.e. its distance to the farthest vertex it can reach
+	 * @param g
+	 * @param v
+	 * @return
+	 */
+	public static <V,E> int eccentricity(Graph<V,E> g, V v) {
+		return farthest(distances(bfs(g, v), v)).getValue();
+	}
+
+	/**
+	 * Helper method returning the last (and so farthest) entry of a distances map
+	 * @param distances
+	 * @return
+	 */
+	private static <V> Map.Entry<V,Integer> farthest(Map<V,Integer> distances) {
+		Map.Entry<V,Integer> last = null;
+		for (Map.Entry<V,Integer> entry : distances.entrySet()) last = entry;
+		return last;
+	}
+
+	/**
+	 * Method that returns a longest shortest path in the (undirected) component of the source,
+	 * so its length is the component's diameter. Uses iFUB: a double sweep picks a central vertex u,
+	 * then only the vertices farthest from u are searched, level by level, until no vertex closer
+	 * to u could be an end of a longer path (on real graphs this takes a handful of bfs runs)
+	 * @param g
+	 * @param source
+	 * @return
+	 */
+	public static <V,E> List<V> diametralPath(Graph<V,E> g, V source) {
+		//Double sweep: the farthest vertex a from the source, then the farthest vertex b from a
+		V a = farthest(distances(bfs(g, source), source)).getKey();
+		Graph<V,E> aTree = bfs(g, a);
+		V b = farthest(distances(aTree, a)).getKey();
+		List<V> longest = getPath(aTree, b);
+
+		//Search from the middle of that path, grouping the vertices into levels by distance
+		V u = longest.get(longest.size() / 2);
+		List<List<V>> levels = new ArrayList<List<V>>();
+		for (Map.Entry<V,Integer> entry : distances(bfs(g, u), u).entrySet()) {
+			if (entry.getValue() == levels.size()) levels.add(new ArrayList<V>());
+			levels.get(entry.getValue()).add(entry.getKey());
+		}
+
+		//Any path longer than 2(i-1) must have an end at level i or beyond, so check the farthest levels first
+		for (int i = levels.size() - 1; 2 * i > longest.size() - 1; i--) {
+			for (V x : levels.get(i)) {
+				Graph<V,E> xTree = bfs(g, x);
+				Map.Entry<V,Integer> far = farthest(distances(xTree, x));
+				if (far.getValue() > longest.size() - 1) {
+					longest = getPath(xTree, far.getKey());
+				}
+			}
+		}
+		return longest;
+	}
+
+	/**
+	 * Method that returns a lower and upper bound on the eccentricity of every vertex in the (undirected)
+	 * component of the source, using at most maxSearches bfs runs (Takes & Kosters' bounding algorithm).
+	 * Each run from v gives every w the bounds max(d(v,w), ecc(v) - d(v,w)) <= ecc(w) <= ecc(v) + d(v,w),
+	 * and runs alternate between the unresolved vertices with the highest upper and lowest lower bound
+	 * @param g
+	 * @param source
+	 * @param maxSearches
+	 * @return map from each vertex to {lower, upper}, which are equal once resolved
+	 */
+	public static <V,E> Map<V,int[]> eccentricityBounds(Graph<V,E> g, V source, int maxSearches) {
+		Map<V,int[]> bounds = new HashMap<V,int[]>();
+		Set<V> unresolved = new HashSet<V>();
+		for (V v : distances(bfs(g, source), source).keySet()) {
+			bounds.put(v, new int[] {0, Integer.MAX_VALUE});
+			unresolved.add(v);
+		}
+
+		boolean pickHigh = true;
+		for (int searches = 0; searches < maxSearches && !unresolved.isEmpty(); searches++) {
+			//Pick the next vertex, breaking ties in favor of higher degree
+			V next = null;
+			for (V v : unresolved) {
+				if (next == null) { next = v; continue; }
+				int[] vb = bounds.get(v), nb = bounds.get(next);
+				int compare = pickHigh ? Integer.compare(vb[1], nb[1]) : Integer.compare(nb[0], vb[0]);
+				if (compare > 0 || (compare == 0 && g.outDegree(v) > g.outDegree(next))) next = v;
+			}
+			pickHigh = !pickHigh;
+
+			//Search from it and tighten everyone's bounds
+			Map<V,Integer> distances = distances(bfs(g, next), next);
+			int ecc = farthest(distances).getValue();
+			Iterator<V> iterator = unresolved.iterator();
+			while (iterator.hasNext()) {
+				V w = iterator.next();
+				int d = distances.get(w);
+				int[] wb = bounds.get(w);
+				if (w.equals(next)) { wb[0] = ecc; wb[1] = ecc; }
+				wb[0] = Math.max(wb[0], Math.max(d, ecc - d));
+				wb[1] = Math.min(wb[1], ecc + d);
+				if (wb[0] == wb[1]) iterator.remove();
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Method that returns the exact eccentricity of every vertex in the (undirected) component of the source
+	 * @param g
+	 * @param source
+	 * @return
+	 */
+	public static <V,E> Map<V,Integer> eccentricities(Graph<V,E> g, V source) {
+		Map<V,Integer> eccentricities = new HashMap<V,Integer>();
+		for (Map.Entry<V,int[]> entry : eccentricityBounds(g, source, Integer.MAX_VALUE).entrySet()) {
+			eccentricities.put(entry.getKey(), entry.getValue()[0]);
+		}
+		return eccentricities;
+	}
+
+	/**
+	 * Method that returns the radius (smallest eccentricity) of the component of the source
+	 * @param g
+	 * @param source
+	 * @return
+	 */
+	public static <V,E> int radius(Graph<V,E> g, V source) {
+		return radius(eccentricities(g, source));
+	}
+
+	/**
+	 * Same as above, from eccentricities already found by eccentricities(g, source)
+	 * @param eccentricities
+	 * @return
+	 */
+	public static <V> int radius(Map<V,Integer> eccentricities) {
+		return Collections.min(eccentricities.values());
+	}
+
+	/**
+	 * Method that returns the center of the component of the source: the vertices whose eccentricity is the radius
+	 * @param g
+	 * @param source
+	 * @return
+	 */
+	public static <V,E> Set<V> center(Graph<V,E> g, V source) {
+		return center(eccentricities(g, source));
+	}
+
+	/**
+	 * Same as above, from eccentricities already found by eccentricities(g, source)
+	 * @param eccentricities
+	 * @return
+	 */
+	public static <V> Set<V> center(Map<V,Integer> eccentricities) {
+		int radius = Collections.min(eccentricities.values());
+		Set<V> center = new HashSet<V>();
+		for (V v : eccentricities.keySet()) {
+			if (eccentricities.get(v) == radius) center.add(v);
+		}
+		return center;
+	}
+
+	/**
+	 * Method that returns one shortest path for every pair of vertices in the component of the source
+	 * that are as far apart as possible (the diameter), each pair listed once
+	 * @param g
+	 * @param source
+	 * @return
+	 */
+	public static <V,E> List<List<V>> diametralPaths(Graph<V,E> g, V source) {
+		return diametralPaths(g, eccentricities(g, source));
+	}
+
+	/**
+	 * Same as above, from eccentricities already found by eccentricities(g, source)
+	 * @param g
+	 * @param eccentricities
+	 * @return
+	 */
+	public static <V,E> List<List<V>> diametralPaths(Graph<V,E> g, Map<V,Integer> eccentricities) {
+		int diameter = Collections.max(eccentricities.values());
+		List<List<V>> paths = new ArrayList<List<V>>();
+		Set<V> done = new HashSet<V>();
+
+		//Only vertices with the largest eccentricity can end such a path
+		for (V v : eccentricities.keySet()) {
+			if (eccentricities.get(v) != diameter) continue;
+			Graph<V,E> tree = bfs(g, v);
+			for (Map.Entry<V,Integer> entry : distances(tree, v).entrySet()) {
+				if (entry.getValue() == diameter && !done.contains(entry.getKey())) {
+					paths.add(getPath(tree, entry.getKey()));
+				}
+			}
+			done.add(v);
+		}
+		return paths;
+	}
+
 	/**
 	 * Method that returns the average distance or separation from the root
 	 * in a subgraph (or shortest path tree)
@@ -149,4 +574,73 @@ public class GraphLibrary {
 		
 		return totald;
 	}
+
+	/**
+	 * Method that returns every vertex of the graph in the order bfs reaches them, one component
+	 * after another (starting each from its highest-degree vertex). Renumbering a CompressedGraph
+	 * in this order puts vertices that a search reaches together next to each other in memory
+	 * @param g
+	 * @return
+	 */
+	public static <V,E> List<V> bfsOrder(Graph<V,E> g) {
+		return searchOrder(g, degreeOrder(g), false);
+	}
+
+	/**
+	 * Method that returns every vertex of the graph sorted from highest to lowest degree, which
+	 * groups the well-connected vertices together
+	 * @param g
+	 * @return
+	 */
+	public static <V,E> List<V> degreeOrder(Graph<V,E> g) {
+		List<V> order = new ArrayList<V>();
+		for (V v : g.vertices()) order.add(v);
+		order.sort((V v1, V v2) -> g.outDegree(v2) - g.outDegree(v1));
+		return order;
+	}
+
+	/**
+	 * Method that returns every vertex of the graph in reverse Cuthill-McKee order: a bfs from a
+	 * lowest-degree vertex of each component, visiting each vertex's neighbors from lowest to
+	 * highest degree, all reversed. It aims to keep every edge's two ends close together
+	 * @param g
+	 * @return
+	 */
+	public static <V,E> List<V> reverseCuthillMcKee(Graph<V,E> g) {
+		List<V> starts = degreeOrder(g);
+		Collections.reverse(starts);
+		List<V> order = searchOrder(g, starts, true);
+		Collections.reverse(order);
+		return order;
+	}
+
+	/**
+	 * Helper method for the orderings: bfs from each vertex of starts not reached yet, in turn,
+	 * optionally visiting each vertex's neighbors from lowest to highest degree
+	 * @param g
+	 * @param starts
+	 * @param byDegree
+	 * @return
+	 */
+	private static <V,E> List<V> searchOrder(Graph<V,E> g, List<V> starts, boolean byDegree) {
+		List<V> order = new ArrayList<V>();
+		Set<V> reached = new HashSet<V>();
+		List<V> children = new ArrayList<V>();
+		for (V start : starts) {
+			if (!reached.add(start)) continue;
+			//The order list doubles as the queue
+			int head = order.size();
+			order.add(start);
+			while (head < order.size()) {
+				V current = order.get(head++);
+				children.clear();
+				for (V child : g.outNeighbors(current)) {
+					if (reached.add(child)) children.add(child);
+				}
+				if (byDegree) children.sort((V v1, V v2) -> g.outDegree(v1) - g.outDegree(v2));
+				order.addAll(children);
+			}
+		}
+		return order;
+	}
 }
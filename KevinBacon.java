@@ -1,4 +1,6 @@
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.io.*;
 
 /**
@@ -167,7 +169,270 @@ public class KevinBacon {
 	     
 	    return baconGraph;
 	}
-	
+
+	/**
+	 * Parallel version of createGraph that builds a CompressedGraph with the same vertices, edges and labels.
+	 * Actors and movies are numbered by int and the casts are turned around into each actor's list of movies,
+	 * which gives every actor a slot of exactly the right size in one shared array. The actors are then
+	 * split across threads, each filling, sorting and collapsing its own actors' slots (so no locks are
+	 * needed): repeated co-stars become one edge, and the movie numbers each pair of co-stars share are kept
+	 * once per pair, gap + varint encoded, from which getLabel makes the set of shared movie names when it
+	 * is asked for. Unlike createGraph, an actor listed twice in one cast does not get an edge to themselves.
+	 * The actors are numbered in sorted ID order.
+	 *
+	 * @param movieIDMap
+	 * @param actorIDMap
+	 * @param filename
+	 * @return
+	 */
+	public static CompressedGraph<String, Set<String>> createCompressedGraph (Map<Integer,String> movieIDMap, Map<Integer,String> actorIDMap, String filename) {
+		return createCompressedGraph(movieIDMap, actorIDMap, filename, null);
+	}
+
+	/**
+	 * Same as createCompressedGraph, but numbers the actors in the order that ordering gives for the graph
+	 * (e.g. GraphLibrary::bfsOrder, to put actors that are searched together near each other in memory).
+	 * Finding the order takes a first build of the graph, so loading takes about twice as long, but the
+	 * graph that is kept takes no more memory than one in the sorted ID order. A null ordering keeps that order.
+	 *
+	 * @param movieIDMap
+	 * @param actorIDMap
+	 * @param filename
+	 * @param ordering
+	 * @return
+	 */
+	public static CompressedGraph<String, Set<String>> createCompressedGraph (Map<Integer,String> movieIDMap, Map<Integer,String> actorIDMap, String filename,
+			Function<Graph<String, Set<String>>, List<String>> ordering) {
+		//Number the actors by sorted ID, giving actors with the same name the same vertex (as createGraph does)
+		int[] actorIDs = new int[actorIDMap.size()];
+		int a = 0;
+		for (int ID: actorIDMap.keySet()) actorIDs[a++] = ID;
+		Arrays.sort(actorIDs);
+		int[] actorVertex = new int[actorIDs.length];
+		List<String> actors = new ArrayList<String>();
+		Map<String, Integer> actorNumbers = new HashMap<String, Integer>();
+		for (int i = 0; i < actorIDs.length; i++) {
+			String actorName = actorIDMap.get(actorIDs[i]);
+			if (!actorNumbers.containsKey(actorName)) {
+				actorNumbers.put(actorName, actors.size());
+				actors.add(actorName);
+			}
+			actorVertex[i] = actorNumbers.get(actorName);
+		}
+
+		//Number the movies by name the same way, since createGraph also groups casts by movie name
+		List<String> movies = new ArrayList<String>();
+		Map<String, Integer> movieNumbers = new HashMap<String, Integer>();
+
+		//Each cast line becomes one long: movie number in the high half, actor vertex in the low half
+		long[] castings = new long[1024];
+		int numCastings = 0;
+		BufferedReader input = null;
+
+	    //Try-catch the attempt to open the file
+	    try {
+	    	 input = new BufferedReader(new FileReader(filename));
+	    }
+
+	    catch (FileNotFoundException e) {
+	         System.err.println("Cannot open file.\n" + e.getMessage());
+	    }
+
+	    //Try-catch the reading of the file
+	    try {
+	    	String line;
+	    	while ((line = input.readLine()) != null) {
+	    		String[] items = line.split("\\|");
+	    		int movieID = Integer.parseInt(items[0]);
+	    		int actorIndex = Arrays.binarySearch(actorIDs, Integer.parseInt(items[1]));
+
+	    		//Skip actors that aren't in the actor file
+	    		if (actorIndex < 0) continue;
+
+	    		String movieName = movieIDMap.get(movieID);
+	    		Integer movie = movieNumbers.get(movieName);
+	    		if (movie == null) {
+	    			movie = movies.size();
+	    			movieNumbers.put(movieName, movie);
+	    			movies.add(movieName);
+	    		}
+	    		if (numCastings == castings.length) castings = Arrays.copyOf(castings, numCastings * 2);
+	    		castings[numCastings++] = ((long) movie << 32) | actorVertex[actorIndex];
+	    	}
+	    }
+
+	    catch (IOException e) {
+	    	System.err.println("IO error while reading or making map/graph. \n" + e.getMessage());
+	    }
+
+	    //Try-Catch the closing of the file
+	    try {
+	    	input.close();
+		}
+
+		catch (IOException e) {
+			System.err.println("Cannot close file.\n" + e.getMessage());
+		}
+
+		//Sort the castings so that each movie's cast is contiguous, then drop repeated lines
+		castings = Arrays.copyOf(castings, numCastings);
+		Arrays.parallelSort(castings);
+		int numMovies = movies.size();
+		int[] castStart = new int[numMovies + 1];
+		int[] cast = new int[numCastings];
+		int c = 0;
+		for (int i = 0; i < numCastings; i++) {
+			if (i > 0 && castings[i] == castings[i - 1]) continue;
+			castStart[(int) (castings[i] >>> 32) + 1]++;
+			cast[c++] = (int) castings[i];
+		}
+		castings = null;
+		for (int m = 0; m < numMovies; m++) castStart[m + 1] += castStart[m];
+
+		//With an ordering, build the graph once to find the order and renumber the actors in it before building
+		//it again, so that the labels are laid out in the new order too
+		if (ordering != null) {
+			List<String> order = ordering.apply(createCompressedGraphFromCasts(actors, movies, castStart, cast, c));
+			if (order.size() != actors.size()) throw new IllegalArgumentException("Order has " + order.size() + " vertices, graph has " + actors.size());
+			int[] renumber = new int[actors.size()];
+			Arrays.fill(renumber, -1);
+			for (int v = 0; v < order.size(); v++) {
+				Integer old = actorNumbers.get(order.get(v));
+				if (old == null || renumber[old] >= 0) throw new IllegalArgumentException("Vertex missing or listed twice: " + order.get(v));
+				renumber[old] = v;
+			}
+			for (int i = 0; i < c; i++) cast[i] = renumber[cast[i]];
+			actors = order;
+		}
+		return createCompressedGraphFromCasts(actors, movies, castStart, cast, c);
+	}
+
+	/**
+	 * Helper method for createCompressedGraph that builds the graph from each movie's cast
+	 * (cast[castStart[m]] .. cast[castStart[m+1]-1] are the actor numbers in movie m, without repeats)
+	 * @param actors
+	 * @param movies
+	 * @param castStart
+	 * @param cast
+	 * @param c
+	 * @return
+	 */
+	private static CompressedGraph<String, Set<String>> createCompressedGraphFromCasts(List<String> actors, List<String> movies, int[] castStart, int[] cast, int c) {
+		int n = actors.size();
+		int numMovies = movies.size();
+
+		//Turn the casts around into each actor's list of movies
+		int[] movieStart = new int[n + 1];
+		for (int i = 0; i < c; i++) movieStart[cast[i] + 1]++;
+		for (int v = 0; v < n; v++) movieStart[v + 1] += movieStart[v];
+		int[] actorMovies = new int[c];
+		int[] fill = Arrays.copyOf(movieStart, n);
+		for (int m = 0; m < numMovies; m++) {
+			for (int i = castStart[m]; i < castStart[m + 1]; i++) actorMovies[fill[cast[i]]++] = m;
+		}
+
+		//Each actor gets a slot with room for one entry per co-star per movie
+		int[] slotStart = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			long end = slotStart[v];
+			for (int i = movieStart[v]; i < movieStart[v + 1]; i++) {
+				int m = actorMovies[i];
+				end += castStart[m + 1] - castStart[m] - 1;
+			}
+			if (end > Integer.MAX_VALUE) throw new IllegalStateException("Too many co-star pairs for one array");
+			slotStart[v + 1] = (int) end;
+		}
+
+		//Fill each actor's slot with (co-star << 32 | movie), sort it by co-star, and count the distinct co-stars;
+		//co-stars with a higher number also get their movies counted, since each pair keeps its label on that side
+		long[] pairs = new long[slotStart[n]];
+		int[] degree = new int[n + 1];
+		int[] upperPairs = new int[n + 1];
+		int[] upperBytes = new int[n + 1];
+		IntStream.range(0, n).parallel().forEach(v -> {
+			int position = slotStart[v];
+			for (int i = movieStart[v]; i < movieStart[v + 1]; i++) {
+				int m = actorMovies[i];
+				for (int j = castStart[m]; j < castStart[m + 1]; j++) {
+					if (cast[j] != v) pairs[position++] = ((long) cast[j] << 32) | m;
+				}
+			}
+			Arrays.sort(pairs, slotStart[v], slotStart[v + 1]);
+			int distinct = 0, upper = 0, bytes = 0, prev = -1;
+			for (int i = slotStart[v]; i < slotStart[v + 1]; i++) {
+				int costar = (int) (pairs[i] >>> 32), m = (int) pairs[i];
+				boolean first = i == slotStart[v] || costar != (int) (pairs[i - 1] >>> 32);
+				if (first) {
+					distinct++;
+					prev = -1;
+					if (costar > v) upper++;
+				}
+				if (costar > v && m != prev) {
+					bytes += CompressedGraph.varintSize(m - prev - 1);
+					prev = m;
+				}
+			}
+			degree[v + 1] = distinct;
+			upperPairs[v + 1] = upper;
+			upperBytes[v + 1] = bytes;
+		});
+		long totalBytes = 0;
+		for (int v = 0; v < n; v++) {
+			degree[v + 1] += degree[v];
+			upperPairs[v + 1] += upperPairs[v];
+			totalBytes += upperBytes[v + 1];
+			if (totalBytes > Integer.MAX_VALUE) throw new IllegalStateException("Too many shared movies for one array");
+			upperBytes[v + 1] = (int) totalBytes;
+		}
+
+		//Collapse each run of the same co-star into one edge; for co-stars with a higher number, gap + varint
+		//encode the run's movies (sorted, since the slot is) as the label of the pair, as neighbor lists are encoded
+		int[] targets = new int[degree[n]];
+		int[] labelOffsets = new int[upperPairs[n] + 1];
+		byte[] labelBytes = new byte[(int) totalBytes];
+		labelOffsets[upperPairs[n]] = (int) totalBytes;
+		IntStream.range(0, n).parallel().forEach(v -> {
+			int k = degree[v] - 1, p = upperPairs[v] - 1, pos = upperBytes[v], prev = -1;
+			for (int i = slotStart[v]; i < slotStart[v + 1]; i++) {
+				int costar = (int) (pairs[i] >>> 32), m = (int) pairs[i];
+				if (i == slotStart[v] || costar != targets[k]) {
+					targets[++k] = costar;
+					prev = -1;
+					if (costar > v) labelOffsets[++p] = pos;
+				}
+				if (costar > v && m != prev) {
+					pos = CompressedGraph.writeVarint(labelBytes, pos, m - prev - 1);
+					prev = m;
+				}
+			}
+		});
+
+		//The label of the edge at index k from v to a higher co-star is pair k - pairBase[v]
+		//(the edges to lower co-stars come first in v's list and have none)
+		int[] pairBase = new int[n];
+		for (int v = 0; v < n; v++) pairBase[v] = degree[v + 1] - (upperPairs[v + 1] - upperPairs[v]) - upperPairs[v];
+		CompressedGraph<String, Set<String>> baconGraph = new CompressedGraph<String, Set<String>>(actors, degree, targets, k -> {
+			//Find the actor whose edges k is among
+			int low = 0, high = n - 1;
+			while (low < high) {
+				int mid = (low + high + 1) >>> 1;
+				if (degree[mid] <= k) low = mid;
+				else high = mid - 1;
+			}
+			int p = k - pairBase[low];
+			Set<String> label = new HashSet<String>();
+			int prev = -1;
+			for (int pos = labelOffsets[p]; pos < labelOffsets[p + 1]; ) {
+				long read = CompressedGraph.readGap(labelBytes, pos);
+				pos = (int) (read >>> 32);
+				prev += (int) read + 1;
+				label.add(movies.get(prev));
+			}
+			return label;
+		}, true);
+		return baconGraph;
+	}
+
 	/**
 	 * Method for obtaining a set of actors that are x number of connections/steps away from the center
 	 * @param steps
@@ -255,6 +520,17 @@ public class KevinBacon {
 		}
 		return bacons;
 	}
+
+	/**
+	 * Same as findAvgSepbacon, but looks the actors up in a precomputed closeness index
+	 * instead of doing a bfs from every actor
+	 * @param averagesep
+	 * @param index
+	 * @return
+	 */
+	public static Set<String> findAvgSepbacon (double averagesep, ClosenessIndex index) {
+		return new HashSet<String>(index.range(averagesep - 0.1, averagesep + 0.1));
+	}
 	
 	/**
 	 * Test method that uses the graph diagram provided in the PS-4 page
@@ -321,7 +597,91 @@ public class KevinBacon {
 		System.out.println("Missing Verticies from Graph:\n" + GraphLibrary.missingVertices(testgraph, kevinbacon_shorttree) + "\n");
 		
 		//Print out the average separation
-		System.out.println("Average Separation from Kevin Bacon:\n" + GraphLibrary.averageSeparation(kevinbacon_shorttree, "Kevin Bacon") + "\n\n");
+		System.out.println("Average Separation from Kevin Bacon:\n" + GraphLibrary.averageSeparation(kevinbacon_shorttree, "Kevin Bacon") + "\n");
+
+		//Compress the graph and check that bfs over it gives the same answers
+		Graph<String, Set<String>> compressed = new CompressedGraph<String, Set<String>>(testgraph);
+		Graph<String, Set<String>> compressed_shorttree = GraphLibrary.bfs(compressed, "Kevin Bacon");
+		System.out.println("Compressed graph:\n" + compressed + "\n");
+		System.out.println("Path from Dartmouth to Kevin Bacon (compressed):\n" + GraphLibrary.getPath(compressed_shorttree, "Dartmouth") + "\n");
+		System.out.println("Average Separation from Kevin Bacon (compressed):\n" + GraphLibrary.averageSeparation(compressed_shorttree, "Kevin Bacon") + "\n");
+
+		//Print out the diameter, radius and center of Kevin Bacon's component
+		List<String> diametral_path = GraphLibrary.diametralPath(testgraph, "Kevin Bacon");
+		System.out.println("Diameter of Kevin Bacon's component:\n" + (diametral_path.size() - 1) + " " + diametral_path + "\n");
+		Map<String, Integer> eccentricities = GraphLibrary.eccentricities(testgraph, "Kevin Bacon");
+		System.out.println("Farthest apart pairs:\n" + GraphLibrary.diametralPaths(testgraph, eccentricities) + "\n");
+		System.out.println("Radius and center of Kevin Bacon's component:\n" + GraphLibrary.radius(eccentricities) + " " + GraphLibrary.center(eccentricities) + "\n");
+
+		//Print out every shortest path from Dartmouth to Kevin Bacon
+		Graph<String, Set<String>> kevinbacon_dag = GraphLibrary.bfsDAG(testgraph, "Kevin Bacon");
+		System.out.println("Number of shortest paths from Dartmouth to Kevin Bacon:\n" + GraphLibrary.shortestPathCount(testgraph, "Kevin Bacon", "Dartmouth") + "\n");
+		System.out.println("All shortest paths from Dartmouth to Kevin Bacon:");
+		for (List<String> path : GraphLibrary.allShortestPaths(kevinbacon_dag, "Dartmouth")) {
+			System.out.println(path);
+		}
+		System.out.println();
+
+		//Write a small cast file (with a duplicate line, and Alice listed twice in Movie B under two IDs)
+		//and check that createGraph and createCompressedGraph build the same graph from it
+		try {
+			File actorfile = File.createTempFile("actors", ".txt");
+			File moviefile = File.createTempFile("movies", ".txt");
+			File castfile = File.createTempFile("cast", ".txt");
+			actorfile.deleteOnExit();
+			moviefile.deleteOnExit();
+			castfile.deleteOnExit();
+			try (PrintWriter output = new PrintWriter(actorfile)) {
+				output.print("1|Alice\n2|Bob\n3|Charlie\n4|Dartmouth\n5|Alice\n6|Nobody\n");
+			}
+			try (PrintWriter output = new PrintWriter(moviefile)) {
+				output.print("1|Movie A\n2|Movie B\n3|Movie C\n");
+			}
+			try (PrintWriter output = new PrintWriter(castfile)) {
+				output.print("1|1\n1|2\n1|3\n1|2\n2|1\n2|3\n2|5\n3|3\n3|4\n");
+			}
+			Map<Integer, String> actorIDs = createIDMap(actorfile.getPath());
+			Map<Integer, String> movieIDs = createIDMap(moviefile.getPath());
+			Graph<String, Set<String>> built = createGraph(movieIDs, actorIDs, castfile.getPath());
+			Graph<String, Set<String>> parallel = createCompressedGraph(movieIDs, actorIDs, castfile.getPath(), GraphLibrary::bfsOrder);
+
+			//Compare edge by edge and label by label, leaving out the self-loops only createGraph makes
+			boolean same = built.numVertices() == parallel.numVertices();
+			Set<String> selfloops = new HashSet<String>();
+			int edges = 0;
+			for (String actor : built.vertices()) {
+				for (String costar : built.outNeighbors(actor)) {
+					if (actor.equals(costar)) {
+						selfloops.add(actor);
+						continue;
+					}
+					edges++;
+					same = same && parallel.hasEdge(actor, costar) && built.getLabel(actor, costar).equals(parallel.getLabel(actor, costar));
+				}
+			}
+			same = same && edges == parallel.numEdges();
+			System.out.println("Graph built by createCompressedGraph:\n" + parallel + "\n");
+			System.out.println("Self-loops only in createGraph:\n" + selfloops + "\n");
+			System.out.println("createGraph and createCompressedGraph match:\n" + same + "\n");
+		}
+		catch (IOException e) {
+			System.err.println("Cannot write test cast file.\n" + e.getMessage());
+		}
+
+		//Build a closeness index in a temporary file and compare it with findAvgSepbacon
+		try {
+			File indexfile = File.createTempFile("closeness", ".idx");
+			indexfile.delete();
+			indexfile.deleteOnExit();
+			ClosenessIndex index = ClosenessIndex.openOrBuild(testgraph, indexfile.getPath());
+			System.out.println("Actors with similar average separations as Kevin Bacon (index, search):\n" + findAvgSepbacon(1.4, index)
+					+ " " + findAvgSepbacon(1.4, testgraph) + "\n");
+			System.out.println("Rank, average separation and component size of Dartmouth:\n" + index.rank("Dartmouth") + " "
+					+ index.averageSeparation("Dartmouth") + " " + index.componentSize("Dartmouth") + "\n\n");
+		}
+		catch (IOException e) {
+			System.err.println("Cannot build closeness index.\n" + e.getMessage());
+		}
 	}
 	
 	/**
@@ -339,7 +699,7 @@ public class KevinBacon {
 		//Read the files and create the ID maps as well as the Movie Actor Graph
 		Map<Integer, String> ActorIDMap = createIDMap("Inputs/actors.txt");
 		Map<Integer, String> MovieIDMap = createIDMap("Inputs/movies.txt");
-		Graph<String, Set<String>> MovieActorGraph = createGraph (MovieIDMap, ActorIDMap, "Inputs/movie-actors.txt");
+		Graph<String, Set<String>> MovieActorGraph = createCompressedGraph (MovieIDMap, ActorIDMap, "Inputs/movie-actors.txt");
 		
 		
 		//Initialize the subgraph and the missing vertices subset
@@ -407,10 +767,22 @@ public class KevinBacon {
 		//in their own respective shortest path trees
 		//End the game upon completion
 		if (comparevar == 0) {
-			System.out.println("\n" + GraphLibrary.averageSeparation(subgraph, actorcenter) + "\n" + "\nPLEASE WAIT AROUND 2 MINUTES, "
-					+ "currently obtaining other actors with similar average separations...");
-			System.out.println("\nThese are the actors with similar average separations as " + actorcenter + ":\n" + 
-			findAvgSepbacon(GraphLibrary.averageSeparation(subgraph, actorcenter), MovieActorGraph) + "\n");
+			System.out.println("\n" + GraphLibrary.averageSeparation(subgraph, actorcenter) + "\n" + "\nCurrently obtaining other actors with similar average separations...");
+
+			//Try-catch the opening of the closeness index (built beforehand by running ClosenessIndex),
+			//falling back to searching from every actor
+			Set<String> bacons = null;
+			try {
+				ClosenessIndex index = ClosenessIndex.openCurrent(MovieActorGraph, "Inputs/closeness.idx");
+				bacons = findAvgSepbacon(GraphLibrary.averageSeparation(subgraph, actorcenter), index);
+				System.out.println("\n" + actorcenter + " ranks " + (index.rank(actorcenter) + 1) + " of " + index.size() + " by average separation");
+			}
+			catch (IOException e) {
+				System.err.println("Cannot use closeness index (run java ClosenessIndex to build it), "
+						+ "PLEASE WAIT AROUND 2 MINUTES while searching from every actor instead.\n" + e.getMessage());
+				bacons = findAvgSepbacon(GraphLibrary.averageSeparation(subgraph, actorcenter), MovieActorGraph);
+			}
+			System.out.println("\nThese are the actors with similar average separations as " + actorcenter + ":\n" + bacons + "\n");
 			
 			System.out.println("The game has ended! Run again to play again!");
 			return;
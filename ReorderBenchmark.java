@@ -0,0 +1,88 @@
+import java.util.*;
+
+/**
+ * @authors David Park and Reseun McClendon
+ * Benchmark comparing the vertex orderings of a CompressedGraph of the movie actor graph.
+ * For each ordering it reports the encoded size, the average id distance between the two ends
+ * of an edge (how far apart in memory a search jumps), and the average time of an id bfs
+ * from the same sample of actors.
+ *
+ * Usage: java ReorderBenchmark [actors file] [movies file] [movie-actors file] [sources] [ordering]
+ * Giving one ordering (original, bfs, degree or rcm) benchmarks only that one, so that cache misses
+ * can be compared between runs with a hardware profiler, e.g. perf stat -e cache-misses java ReorderBenchmark ...
+ */
+public class ReorderBenchmark {
+
+	/**
+	 * Method that returns the average distance between the ids of the two ends of each edge
+	 * @param g
+	 * @return
+	 */
+	public static double averageEdgeSpan(CompressedGraph<String, Set<String>> g) {
+		int[] neighbors = new int[g.maxOutDegree()];
+		long total = 0;
+		for (int v = 0; v < g.numVertices(); v++) {
+			int count = g.outNeighborIDs(v, neighbors);
+			for (int k = 0; k < count; k++) total += Math.abs(neighbors[k] - v);
+		}
+		return g.numEdges() == 0 ? 0 : (double) total / g.numEdges();
+	}
+
+	/**
+	 * Method that returns the average time in milliseconds of an id bfs from each of the sources
+	 * (after running through them once to warm up)
+	 * @param g
+	 * @param sources
+	 * @return
+	 */
+	public static double averageBfsMillis(CompressedGraph<String, Set<String>> g, List<String> sources) {
+		int[] parent = new int[g.numVertices()];
+		int[] queue = new int[g.numVertices()];
+		for (String source : sources) g.bfs(g.idOf(source), parent, queue);
+
+		long start = System.nanoTime();
+		for (String source : sources) g.bfs(g.idOf(source), parent, queue);
+		return (System.nanoTime() - start) / 1e6 / sources.size();
+	}
+
+	/**
+	 * Main method, builds the graph, then renumbers and benchmarks it in each ordering
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		String actorsFile = args.length > 0 ? args[0] : "Inputs/actors.txt";
+		String moviesFile = args.length > 1 ? args[1] : "Inputs/movies.txt";
+		String castFile = args.length > 2 ? args[2] : "Inputs/movie-actors.txt";
+		int numSources = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+		String only = args.length > 4 ? args[4] : null;
+
+		//Build the graph in its original (actor ID) order
+		Map<Integer, String> ActorIDMap = KevinBacon.createIDMap(actorsFile);
+		Map<Integer, String> MovieIDMap = KevinBacon.createIDMap(moviesFile);
+		CompressedGraph<String, Set<String>> original = KevinBacon.createCompressedGraph(MovieIDMap, ActorIDMap, castFile);
+		System.out.println(original.numVertices() + " actors, " + original.numEdges() + " directed edges\n");
+
+		//Pick the same random sample of sources for every ordering
+		List<String> sources = new ArrayList<String>();
+		for (String actor : original.vertices()) sources.add(actor);
+		Collections.shuffle(sources, new Random(10));
+		sources = sources.subList(0, Math.min(numSources, sources.size()));
+
+		String[] orderings = {"original", "bfs", "degree", "rcm"};
+		System.out.println(String.format("%-10s %12s %12s %14s %14s %12s", "ordering", "reorder ms", "bytes", "bytes/edge", "avg edge span", "bfs ms"));
+		for (String ordering : orderings) {
+			if (only != null && !only.equals(ordering)) continue;
+
+			//Renumber the graph
+			long start = System.nanoTime();
+			CompressedGraph<String, Set<String>> g = original;
+			if (ordering.equals("bfs")) g = original.relabel(GraphLibrary.bfsOrder(original));
+			else if (ordering.equals("degree")) g = original.relabel(GraphLibrary.degreeOrder(original));
+			else if (ordering.equals("rcm")) g = original.relabel(GraphLibrary.reverseCuthillMcKee(original));
+			double reorderMillis = (System.nanoTime() - start) / 1e6;
+
+			System.out.println(String.format("%-10s %12.1f %12d %14.2f %14.1f %12.3f", ordering, reorderMillis, g.encodedBytes(),
+					(double) g.encodedBytes() / Math.max(1, g.numEdges()), averageEdgeSpan(g), averageBfsMillis(g, sources)));
+		}
+	}
+}